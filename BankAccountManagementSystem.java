@@ -59,6 +59,7 @@ public class BankAccountManagementSystem {
     static class Bank {
         Map<String, BankAccount> accounts = new HashMap<>();
         String filePath = "accounts.txt"; // File to store account data
+        boolean autoSave = true; // Rewrite the file after every new account; batch mode saves once at the end
 
         // Load accounts from file
         public void loadAccounts() {
@@ -75,27 +76,31 @@ public class BankAccountManagementSystem {
                     }
                 }
             } catch (IOException e) {
-                System.out.println("Error loading accounts: " + e.getMessage());
+                System.err.println("Error loading accounts: " + e.getMessage());
             }
         }
 
         // Save accounts to file
-        public void saveAccounts() {
+        public boolean saveAccounts() {
             try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
                 for (BankAccount account : accounts.values()) {
                     writer.write(account.accountId + "," + account.accountHolder + "," + account.balance);
                     writer.newLine();
                 }
             } catch (IOException e) {
-                System.out.println("Error saving accounts: " + e.getMessage());
+                System.err.println("Error saving accounts: " + e.getMessage());
+                return false;
             }
+            return true;
         }
 
         // Add a new account
         public void addAccount(String accountId, String accountHolder, double balance) {
             BankAccount account = new BankAccount(accountId, accountHolder, balance);
             accounts.put(accountId, account);
-            saveAccounts();
+            if (autoSave) {
+                saveAccounts();
+            }
         }
 
         // Get an account by ID
@@ -121,6 +126,11 @@ public class BankAccountManagementSystem {
         static Bank bank = new Bank();
 
         public static void main(String[] args) {
+            if (args.length > 0 && args[0].equals("--batch")) {
+                runBatch(args.length > 1 ? args[1] : "-");
+                return;
+            }
+
             bank.loadAccounts(); // Load accounts from file
 
             while (true) {
@@ -154,6 +164,121 @@ public class BankAccountManagementSystem {
             }
         }
 
+        // Command names for the batch report, indexed by menu choice
+        private static final String[] COMMAND_NAMES = {"invalid", "create", "deposit", "withdraw", "balance", "transfer", "list", "exit"};
+
+        // Run commands from a file (or stdin for "-") without rendering the menu.
+        // Each line is a menu choice followed by its inputs, comma separated, e.g.
+        //   1,A1,Alice,100   2,A1,50   3,A1,20   4,A1   5,A1,A2,10   6   7
+        // Exits with status 1 if the commands could not be read or the results not saved.
+        private static void runBatch(String source) {
+            bank.autoSave = false; // Save once at the end instead of per command
+            bank.loadAccounts();
+            if (!BatchRunner.run(source, COMMAND_NAMES, 7, BankApp::executeBatchCommand, bank::saveAccounts)) {
+                System.exit(1);
+            }
+        }
+
+        // Execute one batch command, returning whether it changed any account or was invalid.
+        // Amounts are validated here, rejecting NaN and infinity as getValidAmount does,
+        // so BankAccount never prints to the console.
+        private static int executeBatchCommand(int choice, String[] data, BufferedWriter out) throws IOException {
+            switch (choice) {
+                case 1:
+                    if (data.length == 4) {
+                        double balance = Double.parseDouble(data[3].trim());
+                        if (!Double.isFinite(balance) || balance < 0) {
+                            out.write("Invalid initial deposit amount.");
+                            out.newLine();
+                            return BatchRunner.UNCHANGED;
+                        }
+                        bank.addAccount(data[1].trim(), data[2].trim(), balance);
+                        out.write("Account created successfully!");
+                        out.newLine();
+                        return BatchRunner.CHANGED;
+                    }
+                    break;
+                case 2:
+                    if (data.length == 3) {
+                        BankAccount account = bank.getAccount(data[1].trim());
+                        double amount = Double.parseDouble(data[2].trim());
+                        if (account == null) {
+                            out.write("Account not found.");
+                        } else if (!Double.isFinite(amount) || amount <= 0) {
+                            out.write("Deposit amount must be positive.");
+                        } else {
+                            account.deposit(amount);
+                            out.write("Amount deposited successfully!");
+                            out.newLine();
+                            return BatchRunner.CHANGED;
+                        }
+                        out.newLine();
+                        return BatchRunner.UNCHANGED;
+                    }
+                    break;
+                case 3:
+                    if (data.length == 3) {
+                        BankAccount account = bank.getAccount(data[1].trim());
+                        double amount = Double.parseDouble(data[2].trim());
+                        if (account == null) {
+                            out.write("Account not found.");
+                        } else if (!Double.isFinite(amount) || amount <= 0 || account.balance < amount) {
+                            out.write("Insufficient funds or invalid amount.");
+                        } else {
+                            account.withdraw(amount);
+                            out.write("Amount withdrawn successfully!");
+                            out.newLine();
+                            return BatchRunner.CHANGED;
+                        }
+                        out.newLine();
+                        return BatchRunner.UNCHANGED;
+                    }
+                    break;
+                case 4:
+                    if (data.length == 2) {
+                        BankAccount account = bank.getAccount(data[1].trim());
+                        out.write(account != null ? "Balance: $" + account.checkBalance() : "Account not found.");
+                        out.newLine();
+                        return BatchRunner.UNCHANGED;
+                    }
+                    break;
+                case 5:
+                    if (data.length == 4) {
+                        BankAccount sourceAccount = bank.getAccount(data[1].trim());
+                        BankAccount destAccount = bank.getAccount(data[2].trim());
+                        double amount = Double.parseDouble(data[3].trim());
+                        if (sourceAccount == null) {
+                            out.write("Source account not found.");
+                        } else if (destAccount == null) {
+                            out.write("Destination account not found.");
+                        } else if (!Double.isFinite(amount) || amount <= 0 || sourceAccount.balance < amount) {
+                            out.write("Transfer failed.");
+                        } else {
+                            sourceAccount.transferTo(destAccount, amount);
+                            out.write("Money transferred successfully!");
+                            out.newLine();
+                            return BatchRunner.CHANGED;
+                        }
+                        out.newLine();
+                        return BatchRunner.UNCHANGED;
+                    }
+                    break;
+                case 6:
+                    if (bank.accounts.isEmpty()) {
+                        out.write("No accounts available.");
+                        out.newLine();
+                    }
+                    for (BankAccount account : bank.accounts.values()) {
+                        out.write(account.toString());
+                        out.newLine();
+                    }
+                    return BatchRunner.UNCHANGED;
+                default:
+                    break;
+            }
+            return BatchRunner.INVALID;
+        }
+
         // Display menu options
         private static void displayMenu() {
             System.out.println("\nBank Account Management System");
@@ -253,4 +378,32 @@ public class BankAccountManagementSystem {
                         System.out.println("Transfer failed.");
                     }
                 } else {
-                    System.out.println("Destination acco
+                    System.out.println("Destination account not found.");
+                }
+            } else {
+                System.out.println("Source account not found.");
+            }
+        }
+
+        // List all accounts
+        private static void listAccounts() {
+            bank.listAccounts();
+        }
+
+        // Prompt until the user enters a finite, non-negative amount
+        private static double getValidAmount(String prompt) {
+            while (true) {
+                System.out.print(prompt);
+                try {
+                    double amount = Double.parseDouble(scanner.nextLine());
+                    if (Double.isFinite(amount) && amount >= 0) {
+                        return amount;
+                    }
+                    System.out.println("Amount cannot be negative.");
+                } catch (NumberFormatException e) {
+                    System.out.println("Invalid amount! Please enter a number.");
+                }
+            }
+        }
+    }
+}
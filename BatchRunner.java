@@ -0,0 +1,107 @@
+import java.io.*;
+import java.util.function.BooleanSupplier;
+
+// BatchRunner drives an app headlessly from a command stream. Each line is a menu choice
+// followed by its inputs, comma separated. Results are written through one large buffered
+// writer and per-command throughput is reported on stderr at the end.
+public class BatchRunner {
+
+    // Dispatcher results
+    public static final int UNCHANGED = 0;
+    public static final int CHANGED = 1;   // Data changed and needs saving
+    public static final int INVALID = 2;   // Unknown choice or malformed inputs
+
+    // Executes one command and returns UNCHANGED, CHANGED or INVALID. Choice 0 is an
+    // unknown command; a NumberFormatException also marks the command as invalid.
+    public interface Dispatcher {
+        int execute(int choice, String[] data, BufferedWriter out) throws IOException;
+    }
+
+    // Run commands from a file (or stdin for "-") until the exit choice or end of input,
+    // then save once if anything changed. Returns false if reading, writing or saving failed.
+    // commandNames is indexed by menu choice; index 0 counts every invalid command, whatever its choice.
+    public static boolean run(String source, String[] commandNames, int exitChoice,
+                              Dispatcher dispatcher, BooleanSupplier save) {
+        long[] counts = new long[commandNames.length];
+        long[] nanos = new long[commandNames.length];
+        boolean modified = false;
+        boolean ok = true;
+        long start = System.nanoTime();
+
+        // System.out is flushed, never closed, so later messages still reach it
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        try (BufferedReader in = new BufferedReader(source.equals("-")
+                    ? new InputStreamReader(System.in) : new FileReader(source), 1 << 16)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                long t0 = System.nanoTime();
+                String[] data = line.split(",", -1);
+                int choice;
+                try {
+                    choice = Integer.parseInt(data[0].trim());
+                } catch (NumberFormatException e) {
+                    choice = 0;
+                }
+                if (choice == exitChoice) {
+                    break;
+                }
+                if (choice < 0 || choice >= commandNames.length) {
+                    choice = 0;
+                }
+                int result;
+                try {
+                    result = dispatcher.execute(choice, data, out);
+                } catch (NumberFormatException e) {
+                    result = INVALID;
+                }
+                if (result == CHANGED) {
+                    modified = true;
+                } else if (result == INVALID) {
+                    out.write("Invalid command: " + line);
+                    out.newLine();
+                    choice = 0;
+                }
+                counts[choice]++;
+                nanos[choice] += System.nanoTime() - t0;
+            }
+        } catch (IOException e) {
+            System.err.println("Error running batch: " + e.getMessage());
+            ok = false;
+        }
+
+        try {
+            out.flush();
+        } catch (IOException e) {
+            ok = false;
+        }
+        if (System.out.checkError()) {
+            System.err.println("Error writing batch output.");
+            ok = false;
+        }
+
+        if (modified && !save.getAsBoolean()) {
+            ok = false;
+        }
+        printReport(commandNames, counts, nanos, System.nanoTime() - start);
+        return ok;
+    }
+
+    // Print per-command throughput to stderr so it stays out of the results
+    private static void printReport(String[] commandNames, long[] counts, long[] nanos, long totalNanos) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        System.err.printf("Processed %d commands in %.1f ms (%.0f commands/s)%n",
+                total, totalNanos / 1e6, total / (totalNanos / 1e9));
+        for (int i = 0; i < commandNames.length; i++) {
+            if (counts[i] > 0) {
+                System.err.printf("  %-8s %10d  avg %8.0f ns  %12.0f commands/s%n",
+                        commandNames[i], counts[i], (double) nanos[i] / counts[i], counts[i] / (nanos[i] / 1e9));
+            }
+        }
+    }
+}
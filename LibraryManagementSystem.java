@@ -27,46 +27,121 @@ public class LibraryManagementSystem {
     static class Library {
         List<Book> books = new ArrayList<>();
         String filePath = "books.txt";  // File to store books
+        boolean autoSave = true;  // Rewrite the file after every change; batch mode saves once at the end
+        boolean lazy = false;  // Read books on demand through an ISBN index instead of loading them all
+        int cacheSize = 10_000;  // Books kept in memory in lazy mode
+        RecordIndex<Book> index;
 
-        // Load books from the file
+        // Parse one line of the book file, or return null if it does not have four fields.
+        // A bad year throws NumberFormatException, as the eager loader always has.
+        static Book parseBook(String line) {
+            String[] data = line.split(",");
+            if (data.length == 4) {
+                String title = data[0].trim();
+                String author = data[1].trim();
+                String isbn = data[2].trim();
+                int year = Integer.parseInt(data[3].trim());
+                return new Book(title, author, isbn, year);
+            }
+            return null;
+        }
+
+        // Lazy mode parser: a line with a bad year is skipped rather than breaking lookups
+        static Book parseBookOrSkip(String line) {
+            try {
+                return parseBook(line);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        static String formatBook(Book book) {
+            return book.title + "," + book.author + "," + book.isbn + "," + book.year;
+        }
+
+        // Load books from the file, or open the index over it in lazy mode
         public void loadBooks() {
+            if (lazy) {
+                // Only keep the index once it has opened, otherwise load everything as before
+                RecordIndex<Book> opened = new RecordIndex<>(filePath, filePath + ".idx", cacheSize,
+                        Library::parseBookOrSkip, Library::formatBook, book -> book.isbn);
+                try {
+                    opened.open();
+                    index = opened;
+                    return;
+                } catch (IOException e) {
+                    System.err.println("Error opening the book index, loading all books instead: " + e.getMessage());
+                }
+            }
             try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
                 String line;
                 while ((line = reader.readLine()) != null) {
-                    String[] data = line.split(",");
-                    if (data.length == 4) {
-                        String title = data[0].trim();
-                        String author = data[1].trim();
-                        String isbn = data[2].trim();
-                        int year = Integer.parseInt(data[3].trim());
-                        books.add(new Book(title, author, isbn, year));
+                    Book book = parseBook(line);
+                    if (book != null) {
+                        books.add(book);
                     }
                 }
             } catch (IOException e) {
-                System.out.println("Error reading the file: " + e.getMessage());
+                System.err.println("Error reading the file: " + e.getMessage());
+            }
+        }
+
+        // Close the index files in lazy mode
+        public void closeBooks() {
+            if (index != null) {
+                try {
+                    index.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing the book index: " + e.getMessage());
+                }
+                index = null;
             }
         }
 
-        // Save books to the file
-        public void saveBooks() {
+        // Save books to the file; in lazy mode every new book is already appended to it
+        public boolean saveBooks() {
+            if (index != null) {
+                return true;
+            }
             try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
                 for (Book book : books) {
-                    writer.write(book.title + "," + book.author + "," + book.isbn + "," + book.year);
+                    writer.write(formatBook(book));
                     writer.newLine();
                 }
             } catch (IOException e) {
-                System.out.println("Error writing to the file: " + e.getMessage());
+                System.err.println("Error writing to the file: " + e.getMessage());
+                return false;
             }
+            return true;
         }
 
-        // Add a new book
-        public void addBook(String title, String author, String isbn, int year) {
+        // Add a new book. In lazy mode an ISBN that already exists is not added and false is returned.
+        public boolean addBook(String title, String author, String isbn, int year) {
+            if (index != null) {
+                try {
+                    return index.add(new Book(title, author, isbn, year));
+                } catch (IOException e) {
+                    System.err.println("Error writing to the file: " + e.getMessage());
+                    return false;
+                }
+            }
             books.add(new Book(title, author, isbn, year));
-            saveBooks();
+            if (autoSave) {
+                saveBooks();
+            }
+            return true;
         }
 
         // Search for a book by ISBN
         public Book searchBookByIsbn(String isbn) {
+            if (index != null) {
+                try {
+                    return index.get(isbn);
+                } catch (IOException e) {
+                    System.err.println("Error reading the file: " + e.getMessage());
+                    return null;
+                }
+            }
             for (Book book : books) {
                 if (book.isbn.equals(isbn)) {
                     return book;
@@ -75,13 +150,31 @@ public class LibraryManagementSystem {
             return null;
         }
 
+        // Number of books with a distinct ISBN in lazy mode, or all books otherwise
+        public long bookCount() {
+            return index != null ? index.size() : books.size();
+        }
+
+        // Visit every book in file order
+        public void forEachBook(RecordIndex.Visitor<Book> visitor) throws IOException {
+            if (index != null) {
+                index.forEach(visitor);
+                return;
+            }
+            for (Book book : books) {
+                visitor.visit(book);
+            }
+        }
+
         // List all books
         public void listBooks() {
-            if (books.isEmpty()) {
+            if (bookCount() == 0) {
                 System.out.println("No books available in the library.");
             } else {
-                for (Book book : books) {
-                    System.out.println(book);
+                try {
+                    forEachBook(System.out::println);
+                } catch (IOException e) {
+                    System.err.println("Error reading the file: " + e.getMessage());
                 }
             }
         }
@@ -93,6 +186,13 @@ public class LibraryManagementSystem {
         static Library library = new Library();
 
         public static void main(String[] args) {
+            List<String> options = new ArrayList<>(Arrays.asList(args));
+            library.lazy = options.remove("--lazy");
+            if (!options.isEmpty() && options.get(0).equals("--batch")) {
+                runBatch(options.size() > 1 ? options.get(1) : "-");
+                return;
+            }
+
             library.loadBooks(); // Load books from the file
 
             while (true) {
@@ -110,6 +210,7 @@ public class LibraryManagementSystem {
                         break;
                     case 4:
                         System.out.println("Exiting the application.");
+                        library.closeBooks();
                         return;
                     default:
                         System.out.println("Invalid choice! Please try again.");
@@ -117,6 +218,64 @@ public class LibraryManagementSystem {
             }
         }
 
+        // Command names for the batch report, indexed by menu choice
+        private static final String[] COMMAND_NAMES = {"invalid", "add", "search", "list", "exit"};
+
+        // Run commands from a file (or stdin for "-") without rendering the menu.
+        // Each line is a menu choice followed by its inputs, comma separated, e.g.
+        //   1,Dune,Frank Herbert,9780441013593,1965   2,9780441013593   3   4
+        // Exits with status 1 if the commands could not be read or the results not saved.
+        private static void runBatch(String source) {
+            library.autoSave = false; // Save once at the end instead of per command
+            library.loadBooks();
+            boolean ok = BatchRunner.run(source, COMMAND_NAMES, 4, LibraryApp::executeBatchCommand, library::saveBooks);
+            library.closeBooks();
+            if (!ok) {
+                System.exit(1);
+            }
+        }
+
+        // Execute one batch command, returning whether it changed the book list or was invalid
+        private static int executeBatchCommand(int choice, String[] data, BufferedWriter out) throws IOException {
+            switch (choice) {
+                case 1:
+                    if (data.length == 5) {
+                        int year = Integer.parseInt(data[4].trim());
+                        boolean added = library.addBook(data[1].trim(), data[2].trim(), data[3].trim(), year);
+                        out.write(addResult(added, data[3].trim()));
+                        out.newLine();
+                        return added ? BatchRunner.CHANGED : BatchRunner.UNCHANGED;
+                    }
+                    break;
+                case 2:
+                    if (data.length == 2) {
+                        String isbn = data[1].trim();
+                        Book book = library.searchBookByIsbn(isbn);
+                        if (book != null) {
+                            out.write("Book found: " + book);
+                        } else {
+                            out.write("Book not found with ISBN: " + isbn);
+                        }
+                        out.newLine();
+                        return BatchRunner.UNCHANGED;
+                    }
+                    break;
+                case 3:
+                    if (library.bookCount() == 0) {
+                        out.write("No books available in the library.");
+                        out.newLine();
+                    }
+                    library.forEachBook(book -> {
+                        out.write(book.toString());
+                        out.newLine();
+                    });
+                    return BatchRunner.UNCHANGED;
+                default:
+                    break;
+            }
+            return BatchRunner.INVALID;
+        }
+
         // Display menu options
         private static void displayMenu() {
             System.out.println("\nLibrary Management System");
@@ -150,8 +309,18 @@ public class LibraryManagementSystem {
             System.out.print("Enter publication year: ");
             int year = Integer.parseInt(scanner.nextLine());
 
-            library.addBook(title, author, isbn, year);
-            System.out.println("Book added successfully!");
+            System.out.println(addResult(library.addBook(title, author, isbn, year), isbn));
+        }
+
+        // Message for the outcome of adding a book
+        private static String addResult(boolean added, String isbn) {
+            if (added) {
+                return "Book added successfully!";
+            }
+            if (library.searchBookByIsbn(isbn) != null) {
+                return "A book with ISBN " + isbn + " already exists.";
+            }
+            return "Failed to add book.";
         }
 
         // Search for a book by ISBN
@@ -0,0 +1,392 @@
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class LoadTestHarness {
+
+    // Settings parsed from the command line
+    static class Config {
+        long records = 1_000_000;
+        long ops = 100_000;
+        int[] threads = {1, 4};
+        double readRatio = 0.9;   // Fraction of operations that only read
+        double skew = 1.0;        // Zipf exponent for hot keys, 0 = uniform
+        int authors = 10_000;     // Size of the author pool books draw from
+        long seed = 42;
+        String dir = "loadtest";
+        boolean generate = true;
+        boolean lazy = false;     // Open Library and StudentManager through their on-disk index
+        static final List<String> ALL_MANAGERS = Arrays.asList("bank", "library", "student");
+        Set<String> managers = new LinkedHashSet<>(ALL_MANAGERS);
+
+        static Config parse(String[] args) {
+            Config config = new Config();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--no-generate")) {
+                    config.generate = false;
+                    continue;
+                }
+                if (arg.equals("--lazy")) {
+                    config.lazy = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--records":
+                        config.records = Long.parseLong(value);
+                        break;
+                    case "--ops":
+                        config.ops = Long.parseLong(value);
+                        break;
+                    case "--threads":
+                        String[] parts = value.split(",");
+                        config.threads = new int[parts.length];
+                        for (int j = 0; j < parts.length; j++) {
+                            config.threads[j] = Integer.parseInt(parts[j].trim());
+                        }
+                        break;
+                    case "--read-ratio":
+                        config.readRatio = Double.parseDouble(value);
+                        break;
+                    case "--skew":
+                        config.skew = Double.parseDouble(value);
+                        break;
+                    case "--authors":
+                        config.authors = Integer.parseInt(value);
+                        break;
+                    case "--seed":
+                        config.seed = Long.parseLong(value);
+                        break;
+                    case "--dir":
+                        config.dir = value;
+                        break;
+                    case "--managers":
+                        config.managers = new LinkedHashSet<>();
+                        for (String name : value.split(",")) {
+                            if (!ALL_MANAGERS.contains(name.trim())) {
+                                throw new IllegalArgumentException("Unknown manager: " + name.trim());
+                            }
+                            config.managers.add(name.trim());
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (config.records <= 0 || config.ops <= 0 || config.authors <= 0) {
+                throw new IllegalArgumentException("--records, --ops and --authors must be positive");
+            }
+            for (int threads : config.threads) {
+                if (threads <= 0) {
+                    throw new IllegalArgumentException("--threads values must be positive");
+                }
+            }
+            if (!(config.readRatio >= 0 && config.readRatio <= 1)) {
+                throw new IllegalArgumentException("--read-ratio must be between 0 and 1");
+            }
+            if (!(config.skew >= 0)) {
+                throw new IllegalArgumentException("--skew must not be negative");
+            }
+            return config;
+        }
+    }
+
+    // Draws ranks 0..n-1 following an approximate Zipf distribution (continuous inverse CDF),
+    // so rank 0 is the hottest key. A skew of 0 gives a uniform distribution.
+    static class ZipfSampler {
+        final long n;
+        final double skew;
+        final double base;
+
+        ZipfSampler(long n, double skew) {
+            this.n = n;
+            this.skew = skew;
+            this.base = skew == 1.0 ? Math.log(n + 1.0) : Math.pow(n + 1.0, 1.0 - skew) - 1.0;
+        }
+
+        long next(SplittableRandom random) {
+            double u = random.nextDouble();
+            if (skew == 0.0) {
+                return (long) (u * n);
+            }
+            double x = skew == 1.0 ? Math.exp(u * base) : Math.pow(u * base + 1.0, 1.0 / (1.0 - skew));
+            return Math.min(n - 1, Math.max(0, (long) x - 1));
+        }
+    }
+
+    // Key formats shared by the generator and the workloads
+    static String accountId(long i) {
+        return String.format("A%010d", i);
+    }
+
+    static String studentId(long i) {
+        return String.format("S%010d", i);
+    }
+
+    static String isbn(long i) {
+        return String.format("978%010d", i);
+    }
+
+    // Generate accounts.txt, books.txt and students.txt in the target directory
+    static void generate(Config config) throws IOException {
+        new File(config.dir).mkdirs();
+        SplittableRandom random = new SplittableRandom(config.seed);
+        ZipfSampler authorSampler = new ZipfSampler(config.authors, config.skew);
+        String[] grades = {"A", "B", "C", "D", "F"};
+
+        if (config.managers.contains("bank")) {
+            try (BufferedWriter writer = newWriter(config.dir, "accounts.txt")) {
+                for (long i = 0; i < config.records; i++) {
+                    writer.write(accountId(i) + ",Holder " + i + "," + random.nextInt(1, 100_000));
+                    writer.newLine();
+                }
+            }
+        }
+        if (config.managers.contains("library")) {
+            try (BufferedWriter writer = newWriter(config.dir, "books.txt")) {
+                for (long i = 0; i < config.records; i++) {
+                    writer.write("Title " + i + ",Author " + authorSampler.next(random) + "," + isbn(i)
+                            + "," + random.nextInt(1900, 2027));
+                    writer.newLine();
+                }
+            }
+        }
+        if (config.managers.contains("student")) {
+            try (BufferedWriter writer = newWriter(config.dir, "students.txt")) {
+                for (long i = 0; i < config.records; i++) {
+                    writer.write(studentId(i) + ",Student " + i + "," + grades[random.nextInt(grades.length)]);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    static BufferedWriter newWriter(String dir, String name) throws IOException {
+        return new BufferedWriter(new FileWriter(new File(dir, name)), 1 << 16);
+    }
+
+    // One workload operation; write is true for operations that modify data
+    interface Operation {
+        void run(SplittableRandom random, boolean write);
+    }
+
+    // The managers are not thread-safe, so each workload serializes on its manager,
+    // which is what a multi-threaded caller of the current code would have to do.
+    static Operation bankWorkload(Config config, BankAccountManagementSystem.Bank bank) {
+        ZipfSampler keys = new ZipfSampler(config.records, config.skew);
+        return (random, write) -> {
+            String id = accountId(keys.next(random));
+            synchronized (bank) {
+                // Keys beyond a reused, smaller dataset are misses, as in the other workloads
+                BankAccountManagementSystem.BankAccount account = bank.getAccount(id);
+                if (account == null) {
+                    return;
+                }
+                if (!write) {
+                    account.checkBalance();
+                } else if (random.nextBoolean()) {
+                    account.deposit(random.nextInt(1, 1_000));
+                } else {
+                    BankAccountManagementSystem.BankAccount destination = bank.getAccount(accountId(keys.next(random)));
+                    if (destination != null && account.balance >= 1) {
+                        account.transferTo(destination, 1);
+                    }
+                }
+            }
+        };
+    }
+
+    static Operation libraryWorkload(Config config, LibraryManagementSystem.Library library) {
+        ZipfSampler keys = new ZipfSampler(config.records, config.skew);
+        ZipfSampler authors = new ZipfSampler(config.authors, config.skew);
+        long[] nextBook = {config.records};
+        return (random, write) -> {
+            synchronized (library) {
+                if (!write) {
+                    library.searchBookByIsbn(isbn(keys.next(random)));
+                } else {
+                    long i = nextBook[0]++;
+                    library.addBook("Title " + i, "Author " + authors.next(random), isbn(i), 2026);
+                }
+            }
+        };
+    }
+
+    static Operation studentWorkload(Config config, StudentManagementSystem.StudentManager manager) {
+        ZipfSampler keys = new ZipfSampler(config.records, config.skew);
+        return (random, write) -> {
+            String id = studentId(keys.next(random));
+            synchronized (manager) {
+                if (!write) {
+                    manager.searchById(id);
+                } else {
+                    manager.updateStudentById(id, "Student " + id, "B");
+                }
+            }
+        };
+    }
+
+    // Run the operation config.ops times across the given number of threads and print the results
+    static void runWorkload(String name, Config config, Operation operation, int threads) throws Exception {
+        long opsPerThread = config.ops / threads;
+        if (opsPerThread > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many operations per thread: " + opsPerThread);
+        }
+        long[][] latencies = new long[threads][(int) opsPerThread];
+
+        System.gc();
+        long gcBefore = totalGcMillis();
+        resetPeakHeap();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            long[] samples = latencies[t];
+            SplittableRandom random = new SplittableRandom(config.seed + t + 1);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < samples.length; i++) {
+                    boolean write = random.nextDouble() >= config.readRatio;
+                    long t0 = System.nanoTime();
+                    operation.run(random, write);
+                    samples[i] = System.nanoTime() - t0;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        long gcMillis = totalGcMillis() - gcBefore;
+        long peakHeap = peakHeapBytes();
+
+        long[] all = new long[(int) (opsPerThread * threads)];
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(latencies[t], 0, all, t * (int) opsPerThread, (int) opsPerThread);
+        }
+        Arrays.sort(all);
+
+        System.out.printf("%-8s threads=%-3d ops=%-10d %12.0f ops/s  p50=%8.1f us  p99=%8.1f us  p999=%8.1f us  gc=%6d ms  peakHeap=%6d MB%n",
+                name, threads, all.length, all.length / (elapsed / 1e9),
+                percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3, percentile(all, 0.999) / 1e3,
+                gcMillis, peakHeap >> 20);
+    }
+
+    static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+    }
+
+    static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    // Sum of per-pool peaks, an upper bound on the peak total heap usage
+    static long peakHeapBytes() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                total += pool.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+
+    static long usedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Load a manager from its file and report how long it took and how much heap it holds
+    static void reportLoad(String name, Runnable load) {
+        System.gc();
+        long heapBefore = usedHeapBytes();
+        long start = System.nanoTime();
+        load.run();
+        long elapsed = System.nanoTime() - start;
+        System.gc();
+        System.out.printf("%-8s loaded in %.1f ms, heap +%d MB%n",
+                name, elapsed / 1e6, (usedHeapBytes() - heapBefore) >> 20);
+    }
+
+    static void runAll(String name, Config config, Operation operation) throws Exception {
+        // Untimed single-threaded warm-up so the first measured run is not dominated by JIT compilation
+        SplittableRandom warmup = new SplittableRandom(config.seed);
+        for (long i = 0; i < config.ops / 10; i++) {
+            operation.run(warmup, warmup.nextDouble() >= config.readRatio);
+        }
+        for (int threads : config.threads) {
+            runWorkload(name, config, operation, threads);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config;
+        try {
+            config = Config.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java LoadTestHarness [--records N] [--ops N] [--threads 1,4,8]"
+                    + " [--read-ratio 0.9] [--skew 1.0] [--authors N] [--seed N] [--dir loadtest]"
+                    + " [--managers bank,library,student] [--no-generate] [--lazy]");
+            System.exit(2);
+            return;
+        }
+
+        if (config.generate) {
+            long start = System.nanoTime();
+            generate(config);
+            System.out.printf("Generated %d records per file in %s in %.1f s%n",
+                    config.records, config.dir, (System.nanoTime() - start) / 1e9);
+        }
+
+        // Eager writes stay in memory (saving after every change would only measure full-file rewrites);
+        // lazy writes go straight to the data file through the index
+        if (config.managers.contains("bank")) {
+            BankAccountManagementSystem.Bank bank = new BankAccountManagementSystem.Bank();
+            bank.filePath = new File(config.dir, "accounts.txt").getPath();
+            bank.autoSave = false;
+            reportLoad("bank", bank::loadAccounts);
+            runAll("bank", config, bankWorkload(config, bank));
+        }
+        if (config.managers.contains("library")) {
+            LibraryManagementSystem.Library library = new LibraryManagementSystem.Library();
+            library.filePath = new File(config.dir, "books.txt").getPath();
+            library.autoSave = false;
+            library.lazy = config.lazy;
+            reportLoad("library", library::loadBooks);
+            runAll("library", config, libraryWorkload(config, library));
+            library.closeBooks();
+        }
+        if (config.managers.contains("student")) {
+            StudentManagementSystem.StudentManager manager = new StudentManagementSystem.StudentManager();
+            manager.filePath = new File(config.dir, "students.txt").getPath();
+            manager.autoSave = false;
+            manager.lazy = config.lazy;
+            reportLoad("student", manager::loadStudents);
+            runAll("student", config, studentWorkload(config, manager));
+            manager.closeStudents();
+        }
+    }
+}
@@ -0,0 +1,555 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+
+// RecordIndex gives key lookups into a line-per-record data file without loading it.
+// A persistent hash index file maps each key to the byte offset of its line, records are
+// read on demand with positional FileChannel reads and recently used ones are cached.
+//
+// Index file layout: a header (magic, data file length, data file modification time,
+// capacity, live entries, used slots) followed by capacity slots of (key hash, line offset).
+// A zero hash marks an empty slot and a negative offset marks a deleted entry.
+//
+// Keys are unique: when the index is built, later lines repeating an indexed key are
+// overwritten with spaces, so lookups, listing, counting and deletion all see one record
+// per key, the same one a linear search from the top of the file finds.
+//
+// Writes keep the data file readable by the plain line-by-line loaders: new records are
+// appended, updated records are rewritten in place (padded with spaces) or appended, and
+// replaced or deleted lines are overwritten with spaces so they no longer parse.
+//
+// Files that cannot be opened for writing are opened read-only; lookups then work as long
+// as the index is up to date, and writes fail with an IOException.
+public class RecordIndex<T> implements Closeable {
+    private static final long MAGIC = 0x5245434944583031L; // "RECIDX01"
+    private static final int HEADER_SIZE = 48;
+    private static final int SLOT_SIZE = 16;
+    private static final long EMPTY = 0;
+    private static final long DELETED = -1;
+
+    // Called for every record when iterating over the data file
+    public interface Visitor<T> {
+        void visit(T record) throws IOException;
+    }
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final Function<String, T> parser;    // Returns null for lines that are not valid records
+    private final Function<T, String> formatter;
+    private final Function<T, String> keyOf;
+    private final Map<String, T> cache;
+
+    // A key found by findSlot, with the line already read so callers need not read it again
+    private static class Match<T> {
+        final long position;
+        final long offset;
+        final byte[] line;
+        final T record;
+
+        Match(long position, long offset, byte[] line, T record) {
+            this.position = position;
+            this.offset = offset;
+            this.line = line;
+            this.record = record;
+        }
+    }
+
+    private FileChannel data;
+    private FileChannel index;
+    private boolean dataWritable;
+    private boolean indexWritable;
+    long maxChunkSlots = Math.max(1 << 16, Math.min(1 << 26, Runtime.getRuntime().maxMemory() / 8 / SLOT_SIZE));
+    private long capacity;
+    private long live;
+    private long used;
+    private final ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+
+    public RecordIndex(String dataPath, String indexPath, int cacheSize,
+                       Function<String, T> parser, Function<T, String> formatter, Function<T, String> keyOf) {
+        this.dataPath = Paths.get(dataPath);
+        this.indexPath = Paths.get(indexPath);
+        this.parser = parser;
+        this.formatter = formatter;
+        this.keyOf = keyOf;
+        this.cache = new LinkedHashMap<String, T>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // Open the data file and reuse its index if it is up to date, otherwise rebuild it.
+    // On failure both files are closed again.
+    public void open() throws IOException {
+        close();
+        cache.clear();
+        try {
+            dataWritable = true;
+            data = openChannel(dataPath);
+            if (data == null) {
+                dataWritable = false;
+                data = FileChannel.open(dataPath, StandardOpenOption.READ);
+            }
+            indexWritable = true;
+            index = openChannel(indexPath);
+            if (index == null) {
+                indexWritable = false;
+                index = FileChannel.open(indexPath, StandardOpenOption.READ);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (index.size() >= HEADER_SIZE && readFully(index, header, 0) == HEADER_SIZE) {
+                header.flip();
+                boolean valid = header.getLong() == MAGIC
+                        && header.getLong() == data.size()
+                        && header.getLong() == dataModified();
+                if (valid) {
+                    capacity = header.getLong();
+                    live = header.getLong();
+                    used = header.getLong();
+                    if (index.size() == HEADER_SIZE + capacity * SLOT_SIZE) {
+                        return;
+                    }
+                }
+            }
+            if (!indexWritable) {
+                throw new IOException("Index " + indexPath + " is out of date and cannot be rebuilt");
+            }
+            rebuild();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    // Open a file for reading and writing, or return null if write access is denied
+    private static FileChannel openChannel(Path path) throws IOException {
+        try {
+            return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (AccessDeniedException e) {
+            return null;
+        } catch (FileSystemException e) {
+            if (Files.exists(path) && !Files.isWritable(path)) {
+                return null; // e.g. a read-only file system
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (data != null) {
+            data.close();
+            data = null;
+        }
+        if (index != null) {
+            index.close();
+            index = null;
+        }
+    }
+
+    // Number of records reachable through the index
+    public long size() {
+        return live;
+    }
+
+    // Look up a record by key, or return null if there is none
+    public T get(String key) throws IOException {
+        T record = cache.get(key);
+        if (record != null) {
+            return record;
+        }
+        Match<T> match = findSlot(key);
+        if (match == null) {
+            return null;
+        }
+        cache.put(key, match.record);
+        return match.record;
+    }
+
+    // Append a record unless its key is already present, in which case a linear search over
+    // the file would never reach it anyway. Returns false if the key was already present.
+    public boolean add(T record) throws IOException {
+        checkWritable();
+        String key = keyOf.apply(record);
+        if (findSlot(key) != null) {
+            return false;
+        }
+        insert(hash(key), append(formatter.apply(record)));
+        cache.put(key, record);
+        writeHeader();
+        growIfNeeded();
+        return true;
+    }
+
+    // Write a new version of the record stored under the same key, adding it if absent.
+    // A longer version is appended and the index repointed before the old line is blanked,
+    // so a failed write leaves the old version in place. The cache only holds the new
+    // version once it has been written.
+    public void put(T record) throws IOException {
+        checkWritable();
+        String key = keyOf.apply(record);
+        cache.remove(key);
+        Match<T> match = findSlot(key);
+        if (match == null) {
+            add(record);
+            return;
+        }
+        byte[] newLine = formatter.apply(record).getBytes(StandardCharsets.UTF_8);
+        if (newLine.length <= match.line.length) {
+            byte[] padded = Arrays.copyOf(newLine, match.line.length);
+            Arrays.fill(padded, newLine.length, padded.length, (byte) ' ');
+            writeFully(data, ByteBuffer.wrap(padded), match.offset);
+        } else {
+            writeSlot(match.position, hash(key), append(formatter.apply(record)));
+            blank(match.offset, match.line.length);
+        }
+        cache.put(key, record);
+        writeHeader();
+    }
+
+    // Delete the record stored under the key. Returns false if there is none.
+    public boolean remove(String key) throws IOException {
+        checkWritable();
+        Match<T> match = findSlot(key);
+        if (match == null) {
+            return false;
+        }
+        blank(match.offset, match.line.length);
+        writeSlot(match.position, hash(key), DELETED);
+        live--;
+        cache.remove(key);
+        writeHeader();
+        return true;
+    }
+
+    private void checkWritable() throws IOException {
+        if (!dataWritable || !indexWritable) {
+            throw new IOException(dataPath + " is open read-only");
+        }
+    }
+
+    // Visit every record in file order without keeping them in memory
+    public void forEach(Visitor<T> visitor) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(dataPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                T record = parser.apply(line);
+                if (record != null) {
+                    visitor.visit(record);
+                }
+            }
+        }
+    }
+
+    // Recreate the index. One sequential scan of the data file writes a (hash, offset) entry
+    // per record to a temporary file; the table is then built in memory one chunk of slots
+    // at a time from that file, and each finished chunk is written with a single write.
+    // Entries whose probe runs past the end of a chunk carry over into the next one.
+    private void rebuild() throws IOException {
+        Path entriesPath = Paths.get(indexPath + ".tmp");
+        try (FileChannel entries = FileChannel.open(entriesPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE)) {
+            long count = writeEntries(entries);
+
+            capacity = 16;
+            while (capacity < (count + 1) * 2) {
+                capacity <<= 1;
+            }
+            live = 0;
+            used = 0;
+            index.truncate(0);
+            writeFully(index, ByteBuffer.allocate(HEADER_SIZE), 0); // Zero magic until the build completes
+            // Extend the file to its full size; anything not written reads back as empty slots
+            writeFully(index, ByteBuffer.allocate(1), HEADER_SIZE + capacity * SLOT_SIZE - 1);
+
+            List<Long> duplicates = new ArrayList<>();
+            List<long[]> carried = new ArrayList<>();
+            long chunkSlots = Math.min(capacity, Long.highestOneBit(maxChunkSlots));
+            ByteBuffer table = ByteBuffer.allocate((int) (chunkSlots * SLOT_SIZE));
+            ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE << 12);
+            for (long low = 0; low < capacity; low += chunkSlots) {
+                long high = low + chunkSlots;
+                Arrays.fill(table.array(), (byte) 0);
+                List<long[]> overflow = new ArrayList<>();
+                for (long[] entry : carried) {
+                    placeInChunk(table, low, high, low, entry[0], entry[1], overflow, duplicates);
+                }
+                for (long position = 0; position < entries.size(); ) {
+                    buffer.clear();
+                    int n = readFully(entries, buffer, position);
+                    for (int i = 0; i + SLOT_SIZE <= n; i += SLOT_SIZE) {
+                        long hash = buffer.getLong(i);
+                        long home = hash & (capacity - 1);
+                        if (home >= low && home < high) {
+                            placeInChunk(table, low, high, home, hash, buffer.getLong(i + 8), overflow, duplicates);
+                        }
+                    }
+                    position += n;
+                }
+                table.clear();
+                writeFully(index, table, HEADER_SIZE + low * SLOT_SIZE);
+                carried = overflow;
+            }
+            // Entries that ran off the end of the table wrap around to its start, already on disk
+            for (long[] entry : carried) {
+                placeOnDisk(entry[0], entry[1], duplicates);
+            }
+
+            if (!duplicates.isEmpty()) {
+                if (!dataWritable) {
+                    throw new IOException(dataPath + " repeats keys and is open read-only");
+                }
+                for (long offset : duplicates) {
+                    blank(offset, readLine(offset).length);
+                }
+            }
+        }
+        writeHeader();
+    }
+
+    // Scan the data file and write a (hash, offset) entry for every valid record.
+    // Returns the number of entries written.
+    private long writeEntries(FileChannel entries) throws IOException {
+        // Not closed here: closing the stream would close the channel, which is read back later
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(entries), 1 << 16));
+        long count = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        long lineStart = 0;
+        for (long position = 0; position < data.size(); ) {
+            buffer.clear();
+            int n = data.read(buffer, position);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    count += writeEntry(out, line, lineStart);
+                    line.reset();
+                    lineStart = position + i + 1;
+                } else {
+                    line.write(b);
+                }
+            }
+            position += n;
+        }
+        if (line.size() > 0) {
+            count += writeEntry(out, line, lineStart);
+        }
+        out.flush();
+        return count;
+    }
+
+    // Write the entry for one line if it is a valid record, returning the number written
+    private int writeEntry(DataOutputStream out, ByteArrayOutputStream line, long offset) throws IOException {
+        T record = parser.apply(decode(line.toByteArray()));
+        if (record == null) {
+            return 0;
+        }
+        out.writeLong(hash(keyOf.apply(record)));
+        out.writeLong(offset);
+        return 1;
+    }
+
+    // Place an entry in an in-memory chunk covering slots [low, high), probing from start.
+    // A later entry for a key already in the chunk is recorded as a duplicate line, and an
+    // entry that finds no free slot before high is left for the next chunk.
+    private void placeInChunk(ByteBuffer table, long low, long high, long start, long hash, long offset,
+                              List<long[]> overflow, List<Long> duplicates) throws IOException {
+        for (long i = start; i < high; i++) {
+            int position = (int) ((i - low) * SLOT_SIZE);
+            long slotHash = table.getLong(position);
+            if (slotHash == EMPTY) {
+                table.putLong(position, hash).putLong(position + 8, offset);
+                used++;
+                live++;
+                return;
+            }
+            if (slotHash == hash && sameKey(table.getLong(position + 8), offset)) {
+                duplicates.add(offset);
+                return;
+            }
+        }
+        overflow.add(new long[] {hash, offset});
+    }
+
+    // Place an entry that wrapped past the last slot, probing the written table from slot 0
+    private void placeOnDisk(long hash, long offset, List<Long> duplicates) throws IOException {
+        for (long i = 0; ; i++) {
+            long[] entry = readSlot(i);
+            if (entry[0] == EMPTY) {
+                writeSlot(i, hash, offset);
+                used++;
+                live++;
+                return;
+            }
+            if (entry[0] == hash && sameKey(entry[1], offset)) {
+                duplicates.add(offset);
+                return;
+            }
+        }
+    }
+
+    // Whether the records at two offsets have the same key (only checked when their hashes match)
+    private boolean sameKey(long first, long second) throws IOException {
+        T a = parser.apply(decode(readLine(first)));
+        T b = parser.apply(decode(readLine(second)));
+        return a != null && b != null && keyOf.apply(a).equals(keyOf.apply(b));
+    }
+
+    // Rebuild with a larger table once three quarters of the slots are in use
+    private void growIfNeeded() throws IOException {
+        if (used * 4 > capacity * 3) {
+            rebuild();
+        }
+    }
+
+    // Return the slot holding the key together with its line and record, or null if the key is not indexed
+    private Match<T> findSlot(String key) throws IOException {
+        long hash = hash(key);
+        long mask = capacity - 1;
+        for (long i = hash & mask; ; i = (i + 1) & mask) {
+            long[] entry = readSlot(i);
+            if (entry[0] == EMPTY) {
+                return null;
+            }
+            if (entry[0] == hash && entry[1] != DELETED) {
+                byte[] line = readLine(entry[1]);
+                T record = parser.apply(decode(line));
+                if (record != null && key.equals(keyOf.apply(record))) {
+                    return new Match<>(i, entry[1], line, record);
+                }
+            }
+        }
+    }
+
+    // Store an entry in the first empty or deleted slot of its probe sequence
+    private void insert(long hash, long offset) throws IOException {
+        long mask = capacity - 1;
+        for (long i = hash & mask; ; i = (i + 1) & mask) {
+            long[] entry = readSlot(i);
+            if (entry[0] == EMPTY || entry[1] == DELETED) {
+                if (entry[0] == EMPTY) {
+                    used++;
+                }
+                writeSlot(i, hash, offset);
+                live++;
+                return;
+            }
+        }
+    }
+
+    private long[] readSlot(long position) throws IOException {
+        slot.clear();
+        readFully(index, slot, HEADER_SIZE + position * SLOT_SIZE);
+        return new long[] {slot.getLong(0), slot.getLong(8)};
+    }
+
+    private void writeSlot(long position, long hash, long offset) throws IOException {
+        slot.clear();
+        slot.putLong(hash).putLong(offset).flip();
+        writeFully(index, slot, HEADER_SIZE + position * SLOT_SIZE);
+    }
+
+    // Record the data file state so a stale index is detected on the next open
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(MAGIC).putLong(data.size()).putLong(dataModified())
+                .putLong(capacity).putLong(live).putLong(used).flip();
+        writeFully(index, header, 0);
+    }
+
+    private long dataModified() throws IOException {
+        return Files.getLastModifiedTime(dataPath).toMillis();
+    }
+
+    // Append a line to the data file and return its offset
+    private long append(String text) throws IOException {
+        long offset = data.size();
+        if (offset > 0) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            readFully(data, last, offset - 1);
+            if (last.get(0) != '\n') {
+                writeFully(data, ByteBuffer.wrap(new byte[] {'\n'}), offset);
+                offset++;
+            }
+        }
+        writeFully(data, ByteBuffer.wrap((text + "\n").getBytes(StandardCharsets.UTF_8)), offset);
+        return offset;
+    }
+
+    // Overwrite a line with spaces, leaving its newline in place
+    private void blank(long offset, int length) throws IOException {
+        byte[] spaces = new byte[length];
+        Arrays.fill(spaces, (byte) ' ');
+        writeFully(data, ByteBuffer.wrap(spaces), offset);
+    }
+
+    // Read the bytes of the line starting at offset, without the newline
+    private byte[] readLine(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        int scanned = 0;
+        while (true) {
+            int n = data.read(buffer, offset + buffer.position());
+            int end = buffer.position();
+            for (int i = scanned; i < end; i++) {
+                if (buffer.get(i) == '\n') {
+                    return Arrays.copyOf(buffer.array(), i);
+                }
+            }
+            if (n < 0) {
+                return Arrays.copyOf(buffer.array(), end);
+            }
+            scanned = end;
+            if (!buffer.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+    }
+
+    private static String decode(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            total += channel.write(buffer, position + total);
+        }
+        return total;
+    }
+
+    // 64-bit FNV-1a hash of the key, never zero so zero can mark empty slots
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == EMPTY ? 1 : hash;
+    }
+}
@@ -0,0 +1,154 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Checks for RecordIndex and the lazy StudentManager built on it.
+// Run with: java RecordIndexTest (exits with status 1 if a check fails)
+public class RecordIndexTest {
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("record-index-test");
+        try {
+            duplicateKeysFollowOneRule(dir);
+            chunkedRebuildFindsEveryKey(dir);
+            longerUpdateKeepsOneLine(dir);
+            unopenableFileFallsBackToEagerLoading(dir);
+        } finally {
+            deleteRecursively(dir);
+        }
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    // A repeated key is stored once: the first line wins and later copies are blanked,
+    // so lookups, listing, counting, deleting and the eager loader all agree.
+    static void duplicateKeysFollowOneRule(Path dir) throws IOException {
+        Path file = dir.resolve("duplicates.txt");
+        write(file, "S1,Alice,A\nS2,Bob,B\nS1,Dup,C\n");
+        StudentManagementSystem.StudentManager manager = lazyManager(file);
+
+        check(manager.studentCount() == 2, "duplicates: count is distinct keys");
+        check(listIds(manager).equals(Arrays.asList("S1", "S2")), "duplicates: listing matches count");
+        check("Alice".equals(manager.searchById("S1").name), "duplicates: first line wins");
+
+        check(manager.deleteStudentById("S1"), "duplicates: delete succeeds");
+        check(manager.searchById("S1") == null, "duplicates: deleted key is gone");
+        check(listIds(manager).equals(Arrays.asList("S2")), "duplicates: listing no longer shows the key");
+        manager.closeStudents();
+
+        StudentManagementSystem.StudentManager reopened = lazyManager(file);
+        check(reopened.searchById("S1") == null, "duplicates: key stays deleted after reopening");
+        reopened.closeStudents();
+
+        Files.delete(Paths.get(file + ".idx"));
+        StudentManagementSystem.StudentManager rebuilt = lazyManager(file);
+        check(rebuilt.searchById("S1") == null, "duplicates: key stays deleted after a rebuild");
+        rebuilt.closeStudents();
+
+        StudentManagementSystem.StudentManager eager = new StudentManagementSystem.StudentManager();
+        eager.filePath = file.toString();
+        eager.loadStudents();
+        check(eager.searchById("S1") == null && eager.students.size() == 1, "duplicates: eager load agrees");
+    }
+
+    // With tiny chunks, entries spill across chunk boundaries and wrap around the table
+    static void chunkedRebuildFindsEveryKey(Path dir) throws IOException {
+        Path file = dir.resolve("chunked.txt");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append("S").append(i).append(",Name ").append(i).append(",A\n");
+        }
+        text.append("S7,Repeat,B\n");
+        write(file, text.toString());
+
+        RecordIndex<StudentManagementSystem.Student> index = newIndex(file);
+        index.maxChunkSlots = 16;
+        index.open();
+        check(index.size() == 2000, "chunked: every distinct key indexed");
+        boolean allFound = true;
+        for (int i = 0; i < 2000; i++) {
+            StudentManagementSystem.Student student = index.get("S" + i);
+            allFound &= student != null && student.name.equals("Name " + i);
+        }
+        check(allFound, "chunked: every key found with its first record");
+        check(index.get("S2000") == null, "chunked: missing key not found");
+        index.close();
+    }
+
+    // A longer version is appended and the old line blanked, leaving one line for the key
+    static void longerUpdateKeepsOneLine(Path dir) throws IOException {
+        Path file = dir.resolve("update.txt");
+        write(file, "S1,Al,A\nS2,Bo,B\n");
+        StudentManagementSystem.StudentManager manager = lazyManager(file);
+        check(manager.updateStudentById("S1", "Alexander", "B"), "update: succeeds");
+        check("Alexander".equals(manager.searchById("S1").name), "update: new value returned");
+        manager.closeStudents();
+
+        long lines = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.startsWith("S1,")) {
+                lines++;
+            }
+        }
+        check(lines == 1, "update: one line left for the key");
+        StudentManagementSystem.StudentManager reopened = lazyManager(file);
+        check("Alexander".equals(reopened.searchById("S1").name), "update: new value after reopening");
+        reopened.closeStudents();
+    }
+
+    // A data file that cannot be opened must not leave a half-open index behind
+    static void unopenableFileFallsBackToEagerLoading(Path dir) throws IOException {
+        Path file = dir.resolve("directory.txt");
+        Files.createDirectory(file);
+        StudentManagementSystem.StudentManager manager = lazyManager(file);
+        check(manager.index == null, "unopenable: no index kept");
+        check(manager.searchById("S1") == null, "unopenable: lookups still work");
+    }
+
+    static StudentManagementSystem.StudentManager lazyManager(Path file) {
+        StudentManagementSystem.StudentManager manager = new StudentManagementSystem.StudentManager();
+        manager.filePath = file.toString();
+        manager.lazy = true;
+        manager.loadStudents();
+        return manager;
+    }
+
+    static RecordIndex<StudentManagementSystem.Student> newIndex(Path file) {
+        return new RecordIndex<>(file.toString(), file + ".idx", 100,
+                StudentManagementSystem.StudentManager::parseStudent,
+                StudentManagementSystem.StudentManager::formatStudent, student -> student.id);
+    }
+
+    static List<String> listIds(StudentManagementSystem.StudentManager manager) throws IOException {
+        List<String> ids = new ArrayList<>();
+        manager.forEachStudent(student -> ids.add(student.id));
+        return ids;
+    }
+
+    static void write(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void check(boolean condition, String description) {
+        if (!condition) {
+            System.out.println("FAILED: " + description);
+            failures++;
+        }
+    }
+
+    static void deleteRecursively(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(path)) {
+                for (Path child : children) {
+                    deleteRecursively(child);
+                }
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+}
@@ -31,45 +31,110 @@ public class StudentManagementSystem {
     static class StudentManager {
         List<Student> students = new ArrayList<>();
         String filePath = "students.txt"; // File for storing student data
+        boolean autoSave = true; // Rewrite the file after every change; batch mode saves once at the end
+        boolean lazy = false; // Read students on demand through an index instead of loading them all
+        int cacheSize = 10_000; // Students kept in memory in lazy mode
+        RecordIndex<Student> index;
+
+        // Parse one line of the student file, or return null if it is not a valid record
+        static Student parseStudent(String line) {
+            String[] data = line.split(",");
+            if (data.length == 3) {
+                String id = data[0].trim();
+                String name = data[1].trim();
+                String grade = data[2].trim();
+                return new Student(id, name, grade);
+            }
+            return null;
+        }
+
+        static String formatStudent(Student student) {
+            return student.id + "," + student.name + "," + student.grade;
+        }
 
-        // Load students from file
+        // Load students from file, or open the index over it in lazy mode
         public void loadStudents() {
+            if (lazy) {
+                // Only keep the index once it has opened, otherwise load everything as before
+                RecordIndex<Student> opened = new RecordIndex<>(filePath, filePath + ".idx", cacheSize,
+                        StudentManager::parseStudent, StudentManager::formatStudent, student -> student.id);
+                try {
+                    opened.open();
+                    index = opened;
+                    return;
+                } catch (IOException e) {
+                    System.err.println("Error opening student index, loading all students instead: " + e.getMessage());
+                }
+            }
             try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
                 String line;
                 while ((line = reader.readLine()) != null) {
-                    String[] data = line.split(",");
-                    if (data.length == 3) {
-                        String id = data[0].trim();
-                        String name = data[1].trim();
-                        String grade = data[2].trim();
-                        students.add(new Student(id, name, grade));
+                    Student student = parseStudent(line);
+                    if (student != null) {
+                        students.add(student);
                     }
                 }
             } catch (IOException e) {
-                System.out.println("Error loading students: " + e.getMessage());
+                System.err.println("Error loading students: " + e.getMessage());
             }
         }
 
-        // Save students to file
-        public void saveStudents() {
+        // Close the index files in lazy mode
+        public void closeStudents() {
+            if (index != null) {
+                try {
+                    index.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing the student index: " + e.getMessage());
+                }
+                index = null;
+            }
+        }
+
+        // Save students to file; in lazy mode every change is already written through the index
+        public boolean saveStudents() {
+            if (index != null) {
+                return true;
+            }
             try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
                 for (Student student : students) {
-                    writer.write(student.id + "," + student.name + "," + student.grade);
+                    writer.write(formatStudent(student));
                     writer.newLine();
                 }
             } catch (IOException e) {
-                System.out.println("Error saving students: " + e.getMessage());
+                System.err.println("Error saving students: " + e.getMessage());
+                return false;
             }
+            return true;
         }
 
-        // Add a new student
-        public void addStudent(String id, String name, String grade) {
+        // Add a new student. In lazy mode an ID that already exists is not added and false is returned.
+        public boolean addStudent(String id, String name, String grade) {
+            if (index != null) {
+                try {
+                    return index.add(new Student(id, name, grade));
+                } catch (IOException e) {
+                    System.err.println("Error saving student: " + e.getMessage());
+                    return false;
+                }
+            }
             students.add(new Student(id, name, grade));
-            saveStudents();
+            if (autoSave) {
+                saveStudents();
+            }
+            return true;
         }
 
         // Search for a student by ID
         public Student searchById(String id) {
+            if (index != null) {
+                try {
+                    return index.get(id);
+                } catch (IOException e) {
+                    System.err.println("Error reading student: " + e.getMessage());
+                    return null;
+                }
+            }
             for (Student student : students) {
                 if (student.id.equals(id)) {
                     return student;
@@ -78,25 +143,53 @@ public class StudentManagementSystem {
             return null;
         }
 
+        // Number of students
+        public long studentCount() {
+            return index != null ? index.size() : students.size();
+        }
+
+        // Visit every student in file order
+        public void forEachStudent(RecordIndex.Visitor<Student> visitor) throws IOException {
+            if (index != null) {
+                index.forEach(visitor);
+                return;
+            }
+            for (Student student : students) {
+                visitor.visit(student);
+            }
+        }
+
         // List all students
         public void listStudents() {
-            if (students.isEmpty()) {
+            if (studentCount() == 0) {
                 System.out.println("No students found.");
             } else {
-                for (Student student : students) {
-                    System.out.println(student);
+                try {
+                    forEachStudent(System.out::println);
+                } catch (IOException e) {
+                    System.err.println("Error reading students: " + e.getMessage());
                 }
             }
         }
 
         // Delete a student by ID
         public boolean deleteStudentById(String id) {
+            if (index != null) {
+                try {
+                    return index.remove(id);
+                } catch (IOException e) {
+                    System.err.println("Error deleting student: " + e.getMessage());
+                    return false;
+                }
+            }
             Iterator<Student> iterator = students.iterator();
             while (iterator.hasNext()) {
                 Student student = iterator.next();
                 if (student.id.equals(id)) {
                     iterator.remove();
-                    saveStudents();
+                    if (autoSave) {
+                        saveStudents();
+                    }
                     return true;
                 }
             }
@@ -106,12 +199,24 @@ public class StudentManagementSystem {
         // Update a student's information by ID
         public boolean updateStudentById(String id, String name, String grade) {
             Student student = searchById(id);
-            if (student != null) {
-                student.update(name, grade);
-                saveStudents();
+            if (student == null) {
+                return false;
+            }
+            if (index != null) {
+                // Write a new instance so a failed write leaves the cached student unchanged
+                try {
+                    index.put(new Student(id, name, grade));
+                } catch (IOException e) {
+                    System.err.println("Error saving student: " + e.getMessage());
+                    return false;
+                }
                 return true;
             }
-            return false;
+            student.update(name, grade);
+            if (autoSave) {
+                saveStudents();
+            }
+            return true;
         }
     }
 
@@ -121,6 +226,13 @@ public class StudentManagementSystem {
         static StudentManager studentManager = new StudentManager();
 
         public static void main(String[] args) {
+            List<String> options = new ArrayList<>(Arrays.asList(args));
+            studentManager.lazy = options.remove("--lazy");
+            if (!options.isEmpty() && options.get(0).equals("--batch")) {
+                runBatch(options.size() > 1 ? options.get(1) : "-");
+                return;
+            }
+
             studentManager.loadStudents(); // Load students from file
 
             while (true) {
@@ -144,6 +256,7 @@ public class StudentManagementSystem {
                         break;
                     case 6:
                         System.out.println("Exiting the application.");
+                        studentManager.closeStudents();
                         return;
                     default:
                         System.out.println("Invalid choice! Please try again.");
@@ -151,6 +264,78 @@ public class StudentManagementSystem {
             }
         }
 
+        // Command names for the batch report, indexed by menu choice
+        private static final String[] COMMAND_NAMES = {"invalid", "add", "search", "list", "update", "delete", "exit"};
+
+        // Run commands from a file (or stdin for "-") without rendering the menu.
+        // Each line is a menu choice followed by its inputs, comma separated, e.g.
+        //   1,S1,Alice,A   2,S1   3   4,S1,Alice,B   5,S1   6
+        // Exits with status 1 if the commands could not be read or the results not saved.
+        private static void runBatch(String source) {
+            studentManager.autoSave = false; // Save once at the end instead of per command
+            studentManager.loadStudents();
+            boolean ok = BatchRunner.run(source, COMMAND_NAMES, 6, StudentApp::executeBatchCommand, studentManager::saveStudents);
+            studentManager.closeStudents();
+            if (!ok) {
+                System.exit(1);
+            }
+        }
+
+        // Execute one batch command, returning whether it changed the student list or was invalid
+        private static int executeBatchCommand(int choice, String[] data, BufferedWriter out) throws IOException {
+            switch (choice) {
+                case 1:
+                    if (data.length == 4) {
+                        boolean added = studentManager.addStudent(data[1].trim(), data[2].trim(), data[3].trim());
+                        out.write(addResult(added, data[1].trim()));
+                        out.newLine();
+                        return added ? BatchRunner.CHANGED : BatchRunner.UNCHANGED;
+                    }
+                    break;
+                case 2:
+                    if (data.length == 2) {
+                        Student student = studentManager.searchById(data[1].trim());
+                        if (student != null) {
+                            out.write("Student found: " + student);
+                        } else {
+                            out.write("No student found with ID: " + data[1].trim());
+                        }
+                        out.newLine();
+                        return BatchRunner.UNCHANGED;
+                    }
+                    break;
+                case 3:
+                    if (studentManager.studentCount() == 0) {
+                        out.write("No students found.");
+                        out.newLine();
+                    }
+                    studentManager.forEachStudent(student -> {
+                        out.write(student.toString());
+                        out.newLine();
+                    });
+                    return BatchRunner.UNCHANGED;
+                case 4:
+                    if (data.length == 4) {
+                        boolean updated = studentManager.updateStudentById(data[1].trim(), data[2].trim(), data[3].trim());
+                        out.write(updated ? "Student updated successfully!" : failureResult("update", data[1].trim()));
+                        out.newLine();
+                        return updated ? BatchRunner.CHANGED : BatchRunner.UNCHANGED;
+                    }
+                    break;
+                case 5:
+                    if (data.length == 2) {
+                        boolean deleted = studentManager.deleteStudentById(data[1].trim());
+                        out.write(deleted ? "Student deleted successfully!" : failureResult("delete", data[1].trim()));
+                        out.newLine();
+                        return deleted ? BatchRunner.CHANGED : BatchRunner.UNCHANGED;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return BatchRunner.INVALID;
+        }
+
         // Display menu options
         private static void displayMenu() {
             System.out.println("\nStudent Management System");
@@ -183,8 +368,18 @@ public class StudentManagementSystem {
             System.out.print("Enter student grade: ");
             String grade = scanner.nextLine();
 
-            studentManager.addStudent(id, name, grade);
-            System.out.println("Student added successfully!");
+            System.out.println(addResult(studentManager.addStudent(id, name, grade), id));
+        }
+
+        // Message for the outcome of adding a student
+        private static String addResult(boolean added, String id) {
+            if (added) {
+                return "Student added successfully!";
+            }
+            if (studentManager.searchById(id) != null) {
+                return "A student with ID " + id + " already exists.";
+            }
+            return "Failed to add student.";
         }
 
         // Search for a student by ID
@@ -238,8 +433,17 @@ public class StudentManagementSystem {
             if (studentManager.deleteStudentById(id)) {
                 System.out.println("Student deleted successfully!");
             } else {
-                System.out.println("No student found with ID: " + id);
+                System.out.println(failureResult("delete", id));
+            }
+        }
+
+        // Message for an update or delete that did not happen: either the ID is unknown or,
+        // in lazy mode, the change could not be written
+        private static String failureResult(String action, String id) {
+            if (studentManager.searchById(id) != null) {
+                return "Failed to " + action + " student.";
             }
+            return "No student found with ID: " + id;
         }
     }
 }